@@ -0,0 +1,22 @@
+#!/bin/sh
+# Creates a self-signed certificate for local TLS testing:
+#   classroom-server.p12  - teacher's key + certificate (-Dclassroom.keystore)
+#   classroom-trust.p12   - certificate only, for students (-Dclassroom.truststore)
+# EC P-256 keys keep the handshake cheap compared to RSA.
+set -e
+PASS="${1:-changeit}"
+
+rm -f classroom-server.p12 classroom-trust.p12 classroom-server.cer
+
+keytool -genkeypair -alias classroom -keyalg EC -groupname secp256r1 -validity 365 \
+    -dname "CN=localhost, OU=Classroom, O=RealTime Chat" -ext "SAN=dns:localhost,ip:127.0.0.1" \
+    -storetype PKCS12 -keystore classroom-server.p12 -storepass "$PASS"
+
+keytool -exportcert -alias classroom -keystore classroom-server.p12 -storepass "$PASS" \
+    -file classroom-server.cer
+
+keytool -importcert -noprompt -alias classroom -file classroom-server.cer \
+    -storetype PKCS12 -keystore classroom-trust.p12 -storepass "$PASS"
+
+rm -f classroom-server.cer
+echo "Created classroom-server.p12 and classroom-trust.p12 (password: $PASS)"
@@ -0,0 +1,89 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * RoomCheckpoint is a compact snapshot of the classroom state.
+ * - Roster (students connected when the snapshot was taken)
+ * - Attendance (students already marked present)
+ * - Chat mode
+ * Written to a temp file and moved into place, so a crash never leaves a half-written snapshot.
+ */
+public class RoomCheckpoint {
+    private static final int MAGIC = 0x52434B31; // "RCK1"
+    private static final int VERSION = 2;
+
+    public final long savedAt;
+    public final boolean groupChatEnabled;
+    public final List<String> roster;
+    public final List<String> attendance;
+
+    public RoomCheckpoint(long savedAt, boolean groupChatEnabled,
+                          Collection<String> roster, Collection<String> attendance) {
+        this.savedAt = savedAt;
+        this.groupChatEnabled = groupChatEnabled;
+        this.roster = new ArrayList<>(roster);
+        this.attendance = new ArrayList<>(attendance);
+    }
+
+    /**
+     * Writes the snapshot atomically (temp file + rename).
+     */
+    public void write(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream dos = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            dos.writeInt(MAGIC);
+            dos.writeInt(VERSION);
+            dos.writeLong(savedAt);
+            dos.writeBoolean(groupChatEnabled);
+            writeStrings(dos, roster);
+            writeStrings(dos, attendance);
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a snapshot, or returns null if the file is missing or not a valid checkpoint.
+     */
+    public static RoomCheckpoint read(File file) {
+        if (!file.exists())
+            return null;
+        try (DataInputStream dis = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (dis.readInt() != MAGIC || dis.readInt() != VERSION)
+                return null;
+            long savedAt = dis.readLong();
+            boolean group = dis.readBoolean();
+            List<String> roster = readStrings(dis);
+            List<String> attendance = readStrings(dis);
+            return new RoomCheckpoint(savedAt, group, roster, attendance);
+        } catch (IOException e) {
+            System.err.println("RoomCheckpoint: could not read checkpoint: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeStrings(DataOutputStream dos, List<String> values) throws IOException {
+        dos.writeInt(values.size());
+        for (String v : values) {
+            dos.writeUTF(v);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream dis) throws IOException {
+        int n = dis.readInt();
+        if (n < 0)
+            throw new IOException("corrupt checkpoint");
+        List<String> values = new ArrayList<>(Math.min(n, 1024));
+        for (int i = 0; i < n; i++) {
+            values.add(dis.readUTF());
+        }
+        return values;
+    }
+}
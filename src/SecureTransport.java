@@ -0,0 +1,109 @@
+import javax.net.ssl.*;
+import java.io.*;
+import java.net.*;
+import java.security.*;
+
+/**
+ * SecureTransport: optional TLS for the classroom connection.
+ * - Off by default; enable with -Dclassroom.tls=true
+ * - Server reads its key from -Dclassroom.keystore (PKCS12), client trusts -Dclassroom.truststore
+ * - One SSLContext per process, so reconnects resume the cached session / ticket
+ *   instead of paying for a full handshake
+ * Use scripts/make-test-cert.sh to create a self-signed keystore and truststore for local testing.
+ */
+public class SecureTransport {
+    public static final int SESSION_CACHE_SIZE = 1000;
+    public static final int SESSION_TIMEOUT_SECONDS = 4 * 60 * 60; // a long lecture
+
+    private static SSLContext serverContext;
+    private static SSLContext clientContext;
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("classroom.tls");
+    }
+
+    /**
+     * Server socket for the teacher: TLS if enabled, plain otherwise.
+     */
+    public static ServerSocket createServerSocket(int port) throws IOException {
+        if (!isEnabled())
+            return new ServerSocket(port);
+        return serverContext().getServerSocketFactory().createServerSocket(port);
+    }
+
+    /**
+     * Connected socket for a student: TLS if enabled (handshake already done), plain otherwise.
+     */
+    public static Socket connect(String host, int port) throws IOException {
+        if (!isEnabled())
+            return new Socket(host, port);
+        return connect(clientContext(), host, port);
+    }
+
+    /**
+     * TLS connect with a given context; the context's session cache decides full vs resumed handshake.
+     */
+    static SSLSocket connect(SSLContext ctx, String host, int port) throws IOException {
+        SSLSocket s = (SSLSocket) ctx.getSocketFactory().createSocket(host, port);
+        SSLParameters params = s.getSSLParameters();
+        params.setEndpointIdentificationAlgorithm("HTTPS"); // certificate must match the host name
+        s.setSSLParameters(params);
+        s.startHandshake();
+        return s;
+    }
+
+    public static synchronized SSLContext serverContext() throws IOException {
+        if (serverContext == null) {
+            KeyStore ks = loadKeyStore("classroom.keystore", "classroom-server.p12");
+            try {
+                KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+                kmf.init(ks, password());
+                serverContext = newContext(kmf.getKeyManagers(), null);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Could not set up TLS server: " + e.getMessage(), e);
+            }
+        }
+        return serverContext;
+    }
+
+    public static synchronized SSLContext clientContext() throws IOException {
+        if (clientContext == null) {
+            KeyStore ts = loadKeyStore("classroom.truststore", "classroom-trust.p12");
+            try {
+                TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+                tmf.init(ts);
+                clientContext = newContext(null, tmf.getTrustManagers());
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Could not set up TLS client: " + e.getMessage(), e);
+            }
+        }
+        return clientContext;
+    }
+
+    static SSLContext newContext(KeyManager[] km, TrustManager[] tm) throws GeneralSecurityException {
+        SSLContext ctx = SSLContext.getInstance("TLSv1.3");
+        ctx.init(km, tm, null);
+        ctx.getServerSessionContext().setSessionCacheSize(SESSION_CACHE_SIZE);
+        ctx.getServerSessionContext().setSessionTimeout(SESSION_TIMEOUT_SECONDS);
+        ctx.getClientSessionContext().setSessionCacheSize(SESSION_CACHE_SIZE);
+        ctx.getClientSessionContext().setSessionTimeout(SESSION_TIMEOUT_SECONDS);
+        return ctx;
+    }
+
+    static KeyStore loadKeyStore(String property, String defaultFile) throws IOException {
+        File file = new File(System.getProperty(property, defaultFile));
+        try (InputStream is = new FileInputStream(file)) {
+            KeyStore ks = KeyStore.getInstance("PKCS12");
+            ks.load(is, password());
+            return ks;
+        } catch (FileNotFoundException e) {
+            throw new IOException("TLS key store not found: " + file + " (run scripts/make-test-cert.sh)", e);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not load TLS key store " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static char[] password() {
+        return System.getProperty("classroom.keystore.password", "changeit").toCharArray();
+    }
+}
@@ -8,23 +8,29 @@ import java.net.*;
 /**
  * StudentClient:
  * - Asks for Name + UID before connecting.
- * - Connects to TeacherServer at port 5000.
+ * - Connects to TeacherServer at port 5000 (optionally over TLS, see SecureTransport).
  * - Default: private messages (sent to teacher only).
  * - If teacher enables group chat, server will start broadcasting; client shows group messages.
  * - Uses WhatsApp-like chat bubbles: sent (green/right), received (white/left).
+ * - Reconnects automatically (with backoff) if the connection drops, but not after the
+ *   teacher stops the server; over TLS the cached session is resumed, so reconnects stay cheap.
  */
 public class StudentClient {
     private final String SERVER_HOST = "localhost";
     private final int SERVER_PORT = 5000;
+    private static final long[] RECONNECT_DELAYS_MS = {500, 1000, 2000, 4000, 8000, 10000, 10000, 10000, 10000, 10000};
 
     private JFrame frame;
     private JPanel chatPanel;
     private JScrollPane scrollPane;
     private JTextField inputField;
     private JButton sendBtn, leaveBtn;
-    private Socket socket;
-    private PrintWriter out;
-    private BufferedReader in;
+    private volatile Socket socket;
+    private volatile PrintWriter out;
+    private volatile BufferedReader in;
+    private volatile boolean connected = false;
+    private volatile boolean leaving = false;
+    private volatile String resumeToken = ""; // issued by the server, proves this client owns its seat
 
     private String name;
     private String uid;
@@ -35,8 +41,8 @@ public class StudentClient {
 
     private void start() {
         // Prompt until valid name+uid and successful connect
-        boolean connected = false;
-        while (!connected) {
+        boolean joined = false;
+        while (!joined) {
             JTextField nameField = new JTextField();
             JTextField uidField = new JTextField();
             Object[] form = {"Enter Name:", nameField, "Enter UID:", uidField};
@@ -54,20 +60,16 @@ public class StudentClient {
 
             // attempt connect and register
             try {
-                socket = new Socket(SERVER_HOST, SERVER_PORT);
-                out = new PrintWriter(socket.getOutputStream(), true);
-                in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-
-                // send name and uid
-                out.println(name);
-                out.println(uid);
+                openConnection();
 
                 // read immediate response (server may reply "UID_EXISTS" or other)
                 // If server replies "UID_EXISTS", it will close
                 socket.setSoTimeout(1500); // small timeout to wait for potential immediate reply
                 try {
                     String immediate = in.readLine(); // may be null if no immediate reply
-                    if (immediate != null && immediate.contains("UID_EXISTS")) {
+                    if (immediate != null && immediate.startsWith("RESUME_TOKEN ")) {
+                        resumeToken = immediate.substring("RESUME_TOKEN ".length()).trim();
+                    } else if (immediate != null && immediate.contains("UID_EXISTS")) {
                         JOptionPane.showMessageDialog(null, "UID already exists. Try again with a different UID.");
                         closeQuietly();
                         continue;
@@ -85,12 +87,13 @@ public class StudentClient {
                     socket.setSoTimeout(0); // remove timeout
                 }
 
-                connected = true; // connected and accepted
+                joined = true; // connected and accepted
             } catch (IOException ex) {
                 JOptionPane.showMessageDialog(null, "Could not connect to server: " + ex.getMessage());
             }
         }
 
+        connected = true;
         createAndShowChatUI();
 
         // start listening to server lines
@@ -136,25 +139,103 @@ public class StudentClient {
         frame.setVisible(true);
     }
 
-    // Listening loop: receive and display messages from server
+    // Connect (TLS if -Dclassroom.tls=true) and send name + uid
+    private void openConnection() throws IOException {
+        socket = SecureTransport.connect(SERVER_HOST, SERVER_PORT);
+        out = new PrintWriter(socket.getOutputStream(), true);
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        out.println(name);
+        out.println(uid);
+        out.println(resumeToken); // empty on first join
+    }
+
+    // Listening loop: receive and display messages from server, reconnecting if the connection drops
     private void listenLoop() {
-        try {
-            String line;
-            while ((line = in.readLine()) != null) {
-                // show received messages on left side
-                addMessage(line, false);
+        while (true) {
+            boolean uidTaken = false;
+            boolean sessionTaken = false;
+            boolean serverStopped = false;
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.startsWith("RESUME_TOKEN ")) {
+                        resumeToken = line.substring("RESUME_TOKEN ".length()).trim();
+                        continue;
+                    }
+                    if (line.contains("UID_EXISTS")) {
+                        uidTaken = true;
+                        break;
+                    }
+                    if (line.equals("SESSION_TAKEN")) {
+                        sessionTaken = true;
+                        break;
+                    }
+                    if (line.contains("Server stopped by teacher")) { // ASCII part survives any charset
+                        // deliberate stop by the teacher, not a network drop: rejoin must go through the dialog
+                        addMessage(line, false);
+                        serverStopped = true;
+                        break;
+                    }
+                    // show received messages on left side
+                    addMessage(line, false);
+                }
+            } catch (IOException ignored) {
             }
-        } catch (IOException e) {
-            addMessage("⚠ Disconnected from server.", false);
-        } finally {
+            connected = false;
             closeQuietly();
+            if (leaving)
+                return;
+            if (uidTaken) {
+                addMessage("⚠ Your UID is now used by another student. Disconnected.", false);
+                return;
+            }
+            if (serverStopped) {
+                addMessage("⚠ Class ended. Restart the app to join again.", false);
+                return;
+            }
+            if (sessionTaken) {
+                // our seat was resumed by another connection holding our token; don't fight over it
+                addMessage("⚠ This session was continued from another connection. Disconnected.", false);
+                return;
+            }
+            addMessage("⚠ Disconnected from server. Reconnecting...", false);
+            if (!reconnect()) {
+                addMessage("⚠ Could not reconnect to server.", false);
+                return;
+            }
+            addMessage("✅ Reconnected.", false);
         }
     }
 
+    // Retry with backoff; the resume token lets the server hand over our old seat
+    private boolean reconnect() {
+        for (long delay : RECONNECT_DELAYS_MS) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return false;
+            }
+            if (leaving)
+                return false;
+            try {
+                openConnection();
+                connected = true;
+                return true;
+            } catch (IOException e) {
+                closeQuietly();
+            }
+        }
+        return false;
+    }
+
     // Send text typed by the student
     private void sendMessage() {
         String txt = inputField.getText().trim();
         if (txt.isEmpty()) return;
+        if (!connected) {
+            addMessage("⚠ Not connected, message not sent.", false);
+            return;
+        }
         // Show student message locally (right aligned)
         addMessage("You: " + txt, true);
         // send to server; server decides routing: teacher only or group broadcast
@@ -166,6 +247,7 @@ public class StudentClient {
     private void leaveClass() {
         try {
             // send leave command so server broadcasts leave message and cleans up
+            leaving = true;
             out.println("/leave");
             closeQuietly();
             frame.dispose();
@@ -4,7 +4,10 @@ import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 import java.net.*;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * TeacherServer
@@ -13,6 +16,9 @@ import java.util.*;
  * - Private chat by default; teacher-controlled group chat
  * - Case-insensitive UID uniqueness
  * - Attendance stored in memory and file
+ * - Room state checkpointed periodically so a restart keeps attendance
+ * - Searchable transcript of the live and earlier sessions
+ * - Optional TLS transport (see SecureTransport)
  */
 public class TeacherServer {
     // GUI components
@@ -23,7 +29,7 @@ public class TeacherServer {
     private JButton teacherSendBtn;
     private DefaultListModel<String> studentListModel;
     private JList<String> studentList;
-    private JButton startServerBtn, stopServerBtn, startGroupBtn, viewAttendanceBtn, resetAttendanceBtn;
+    private JButton startServerBtn, stopServerBtn, startGroupBtn, viewAttendanceBtn, resetAttendanceBtn, searchChatBtn;
 
     // Networking
     private final int PORT = 5000;
@@ -31,11 +37,29 @@ public class TeacherServer {
     private volatile boolean serverRunning = false;
     private final Map<String, ClientHandler> clients = Collections.synchronizedMap(new HashMap<>());
     private volatile boolean groupChatEnabled = false;
+    private static final SecureRandom RANDOM = new SecureRandom();
 
     // Attendance
     private final Set<String> attendanceSet = Collections.synchronizedSet(new LinkedHashSet<>());
     private final File attendanceFile = new File("attendance.txt");
 
+    // Checkpointing & shutdown
+    private static final long CHECKPOINT_INTERVAL_MS = 5000;
+    private static final long DRAIN_TIMEOUT_MS = 1500;
+    private static final int DRAIN_THREADS = 16;
+    private static final String NOT_REJOINED = " – not yet rejoined";
+    private final File checkpointFile = new File("room.checkpoint");
+    // UID -> display of students connected before a restart who have not come back yet
+    private final Map<String, String> awaitingRejoin = Collections.synchronizedMap(new LinkedHashMap<>());
+    private volatile boolean stateDirty = false;
+    private ScheduledExecutorService checkpointExec;
+
+    // Transcript search
+    private static final String TEACHER_UID = "TEACHER";
+    private static final int MAX_SEARCH_HITS = 200;
+    private static final int MAX_ARCHIVED_SESSIONS = 30;
+    private final TranscriptIndex transcriptIndex = new TranscriptIndex(new File("transcripts.dat"), MAX_ARCHIVED_SESSIONS);
+
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> new TeacherServer().createAndShowGUI());
     }
@@ -69,12 +93,14 @@ public class TeacherServer {
         viewAttendanceBtn.setEnabled(false);
         resetAttendanceBtn = new JButton("🔄 Reset Attendance");
         resetAttendanceBtn.setEnabled(false);
+        searchChatBtn = new JButton("🔍 Search Chat");
 
         leftButtons.add(startServerBtn);
         leftButtons.add(stopServerBtn);
         leftButtons.add(startGroupBtn);
         leftButtons.add(viewAttendanceBtn);
         leftButtons.add(resetAttendanceBtn);
+        leftButtons.add(searchChatBtn);
         leftPanel.add(leftButtons, BorderLayout.SOUTH);
         frame.add(leftPanel, BorderLayout.WEST);
 
@@ -107,6 +133,7 @@ public class TeacherServer {
         startGroupBtn.addActionListener(e -> toggleGroupChat());
         viewAttendanceBtn.addActionListener(e -> showAttendancePopup());
         resetAttendanceBtn.addActionListener(e -> resetAttendance());
+        searchChatBtn.addActionListener(e -> showSearchDialog());
 
         studentList.addMouseListener(new MouseAdapter() {
             public void mouseClicked(MouseEvent evt) {
@@ -141,7 +168,7 @@ public class TeacherServer {
     // ---------------- Server lifecycle ----------------
     private void startServer() {
         try {
-            serverSocket = new ServerSocket(PORT);
+            serverSocket = SecureTransport.createServerSocket(PORT);
             serverRunning = true;
 
             startServerBtn.setEnabled(false);
@@ -151,7 +178,11 @@ public class TeacherServer {
             viewAttendanceBtn.setEnabled(true);
             resetAttendanceBtn.setEnabled(true);
 
-            appendSystemMessage("✅ Server started on port " + PORT + ". Waiting for students...");
+            appendSystemMessage("✅ Server started on port " + PORT + (SecureTransport.isEnabled() ? " (TLS)" : "")
+                    + ". Waiting for students...");
+            if (!restoreCheckpoint())
+                transcriptIndex.archiveSession(); // new class -> new transcript session
+            startCheckpointing();
 
             Thread acceptThread = new Thread(() -> {
                 while (serverRunning) {
@@ -173,6 +204,11 @@ public class TeacherServer {
         }
     }
 
+    /**
+     * Stops accepting at once; the final checkpoint and the client drain run on a background
+     * thread (up to 2s for a running save + DRAIN_TIMEOUT_MS), so the dashboard never freezes.
+     * Start Server is re-enabled when that thread is done.
+     */
     private void stopServer() {
         serverRunning = false;
         try {
@@ -180,23 +216,153 @@ public class TeacherServer {
                 serverSocket.close();
         } catch (IOException ignored) {
         }
-
-        synchronized (clients) {
-            for (ClientHandler ch : new ArrayList<>(clients.values())) {
-                ch.sendLine("⚠ Server stopped by teacher.");
-                ch.closeQuietly();
-            }
-            clients.clear();
-        }
-        studentListModel.clear();
-        attendanceSet.clear();
-        appendSystemMessage("🛑 Server stopped. All clients disconnected.");
-        startServerBtn.setEnabled(true);
         stopServerBtn.setEnabled(false);
         startGroupBtn.setEnabled(false);
         teacherSendBtn.setEnabled(false);
         viewAttendanceBtn.setEnabled(false);
         resetAttendanceBtn.setEnabled(false);
+        appendSystemMessage("Stopping server...");
+
+        ScheduledExecutorService exec = checkpointExec;
+        checkpointExec = null;
+        new Thread(() -> {
+            // Final checkpoint while the roster is still known, then drain everyone in parallel
+            stopCheckpointing(exec);
+            saveCheckpoint();
+
+            ArrayList<ClientHandler> toDrain;
+            synchronized (clients) {
+                toDrain = new ArrayList<>(clients.values());
+                clients.clear();
+            }
+            drainClients(toDrain);
+            attendanceSet.clear();
+            awaitingRejoin.clear();
+
+            SwingUtilities.invokeLater(() -> {
+                studentListModel.clear();
+                appendSystemMessage("🛑 Server stopped. All clients disconnected.");
+                startServerBtn.setEnabled(true);
+            });
+        }, "stop-server").start();
+    }
+
+    /**
+     * Sends the shutdown notice to all clients in parallel and closes them.
+     * Bounded by DRAIN_TIMEOUT_MS: sockets still blocked after that are closed forcibly.
+     */
+    private void drainClients(Collection<ClientHandler> handlers) {
+        if (handlers.isEmpty())
+            return;
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(handlers.size(), DRAIN_THREADS), r -> {
+            Thread t = new Thread(r, "drain");
+            t.setDaemon(true);
+            return t;
+        });
+        for (ClientHandler ch : handlers) {
+            pool.execute(() -> {
+                ch.sendLine("⚠ Server stopped by teacher.");
+                ch.closeQuietly();
+            });
+        }
+        pool.shutdown();
+        try {
+            pool.awaitTermination(DRAIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // closing the socket unblocks any writer stuck on a slow client
+        for (ClientHandler ch : handlers) {
+            ch.closeQuietly();
+        }
+        pool.shutdownNow();
+    }
+
+    // ---------------- Checkpointing ----------------
+    private void startCheckpointing() {
+        checkpointExec = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "checkpoint");
+            t.setDaemon(true);
+            return t;
+        });
+        checkpointExec.scheduleWithFixedDelay(() -> {
+            if (stateDirty) {
+                stateDirty = false;
+                saveCheckpoint();
+            }
+        }, CHECKPOINT_INTERVAL_MS, CHECKPOINT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void stopCheckpointing(ScheduledExecutorService exec) {
+        if (exec != null) {
+            // let a save that is already running finish before the final one
+            exec.shutdown();
+            try {
+                exec.awaitTermination(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Synchronized so two saves never write the same temp file at once.
+     */
+    private synchronized void saveCheckpoint() {
+        ArrayList<String> roster = new ArrayList<>();
+        synchronized (clients) {
+            for (ClientHandler ch : clients.values()) {
+                roster.add(ch.name + " (" + ch.uid + ")");
+            }
+        }
+        synchronized (awaitingRejoin) {
+            roster.addAll(awaitingRejoin.values());
+        }
+        ArrayList<String> present;
+        synchronized (attendanceSet) {
+            present = new ArrayList<>(attendanceSet);
+        }
+        try {
+            new RoomCheckpoint(System.currentTimeMillis(), groupChatEnabled, roster, present)
+                    .write(checkpointFile);
+        } catch (IOException e) {
+            System.err.println("TeacherServer: could not write checkpoint: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Offers to resume the class saved in the checkpoint (e.g. after a restart mid-lecture).
+     * Declining starts a new class and discards the checkpoint.
+     * Returns true if the previous session was resumed.
+     */
+    private boolean restoreCheckpoint() {
+        RoomCheckpoint rc = RoomCheckpoint.read(checkpointFile);
+        if (rc == null)
+            return false;
+        String savedAt = new java.text.SimpleDateFormat("dd-MM-yyyy HH:mm").format(new Date(rc.savedAt));
+        int choice = JOptionPane.showConfirmDialog(frame,
+                "Resume the previous session saved at " + savedAt + "?\n"
+                        + rc.attendance.size() + " student(s) were marked present.\n\n"
+                        + "Choose No to start a new class.",
+                "Resume Session", JOptionPane.YES_NO_OPTION);
+        if (choice != JOptionPane.YES_OPTION) {
+            checkpointFile.delete();
+            awaitingRejoin.clear();
+            appendSystemMessage("Starting a new class.");
+            return false;
+        }
+        attendanceSet.addAll(rc.attendance);
+        // students connected before the restart stay listed until they come back
+        for (String display : rc.roster) {
+            String uid = extractUID(display);
+            if (uid != null && awaitingRejoin.put(uid, display) == null)
+                studentListModel.addElement(display + NOT_REJOINED);
+        }
+        if (rc.groupChatEnabled != groupChatEnabled)
+            toggleGroupChat();
+        appendSystemMessage("♻ Restored session: " + rc.attendance.size() + " present, "
+                + rc.roster.size() + " waiting to rejoin.");
+        return true;
     }
 
     // ---------------- Teacher messaging ----------------
@@ -206,6 +372,7 @@ public class TeacherServer {
             return;
 
         if (groupChatEnabled) {
+            recordMessage(TEACHER_UID, text);
             appendMessage("👩‍🏫 Teacher: " + text, true);
             broadcastToAll("👩‍🏫 Teacher: " + text);
         } else {
@@ -217,6 +384,7 @@ public class TeacherServer {
             String uid = extractUID(sel);
             ClientHandler ch = clients.get(uid);
             if (ch != null) {
+                recordMessage(TEACHER_UID, text);
                 appendMessage("To " + sel + ": " + text, true);
                 ch.sendLine("👩‍🏫 Teacher (private): " + text);
             } else {
@@ -226,8 +394,16 @@ public class TeacherServer {
         teacherMessageField.setText("");
     }
 
+    /**
+     * Every chat message goes through here so it lands in the search index.
+     */
+    private void recordMessage(String senderUid, String text) {
+        transcriptIndex.add(senderUid, text, System.currentTimeMillis());
+    }
+
     private void toggleGroupChat() {
         groupChatEnabled = !groupChatEnabled;
+        stateDirty = true;
         if (groupChatEnabled) {
             startGroupBtn.setText("Stop Group Chat");
             appendSystemMessage("💬 Group Chat ENABLED.");
@@ -264,6 +440,7 @@ public class TeacherServer {
                 "Confirm Reset", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
             attendanceSet.clear();
+            stateDirty = true;
             if (attendanceFile.exists())
                 attendanceFile.delete();
             broadcastToAll("🔄 Attendance list has been reset by the teacher.");
@@ -272,6 +449,65 @@ public class TeacherServer {
         }
     }
 
+    // ---------------- Transcript search ----------------
+    private void showSearchDialog() {
+        JDialog dialog = new JDialog(frame, "Search Chat", false);
+        dialog.setSize(560, 460);
+        dialog.setLayout(new BorderLayout(6, 6));
+
+        JTextField termsField = new JTextField();
+        JTextField uidField = new JTextField();
+        JComboBox<String> rangeBox = new JComboBox<>(new String[]{"Any time", "Last 10 minutes", "Last hour", "Last 24 hours"});
+        JCheckBox liveOnlyBox = new JCheckBox("Current session only");
+        JButton searchBtn = new JButton("Search");
+
+        JPanel form = new JPanel(new GridLayout(0, 2, 6, 6));
+        form.setBorder(new EmptyBorder(10, 10, 0, 10));
+        form.add(new JLabel("Words:"));
+        form.add(termsField);
+        form.add(new JLabel("Sender UID (optional):"));
+        form.add(uidField);
+        form.add(new JLabel("Time:"));
+        form.add(rangeBox);
+        form.add(liveOnlyBox);
+        form.add(searchBtn);
+        dialog.add(form, BorderLayout.NORTH);
+
+        JTextArea results = new JTextArea();
+        results.setEditable(false);
+        results.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        JScrollPane sp = new JScrollPane(results);
+        sp.setBorder(new EmptyBorder(0, 10, 10, 10));
+        dialog.add(sp, BorderLayout.CENTER);
+
+        long[] rangeMs = {0, 10 * 60 * 1000L, 60 * 60 * 1000L, 24 * 60 * 60 * 1000L};
+        java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("dd-MM HH:mm:ss");
+        ActionListener doSearch = ev -> {
+            long range = rangeMs[rangeBox.getSelectedIndex()];
+            long from = range == 0 ? Long.MIN_VALUE : System.currentTimeMillis() - range;
+            long start = System.nanoTime();
+            java.util.List<TranscriptIndex.Hit> hits = transcriptIndex.search(termsField.getText(), uidField.getText(),
+                    from, Long.MAX_VALUE, liveOnlyBox.isSelected(), MAX_SEARCH_HITS);
+            long micros = (System.nanoTime() - start) / 1000;
+
+            StringBuilder sb = new StringBuilder();
+            sb.append(hits.size()).append(hits.size() == MAX_SEARCH_HITS ? "+" : "")
+                    .append(" result(s) in ").append(micros).append(" µs\n\n");
+            for (TranscriptIndex.Hit h : hits) {
+                sb.append('[').append(sdf.format(new Date(h.time))).append("] (session ").append(h.session + 1)
+                        .append(") ").append(h.senderUid).append(": ").append(h.text).append('\n');
+            }
+            results.setText(sb.toString());
+            results.setCaretPosition(0);
+        };
+        searchBtn.addActionListener(doSearch);
+        termsField.addActionListener(doSearch);
+        uidField.addActionListener(doSearch);
+
+        dialog.setLocationRelativeTo(frame);
+        dialog.setVisible(true);
+    }
+
     // ---------------- Private Chat Window ----------------
     private void openPrivateChatWindow(String targetUid) {
         ClientHandler ch = clients.get(targetUid);
@@ -305,6 +541,7 @@ public class TeacherServer {
             JPanel bubble = createBubble("You: " + txt, true);
             pChat.add(bubble);
             pChat.revalidate();
+            recordMessage(TEACHER_UID, txt);
             ch.sendLine("👩‍🏫 Teacher (private): " + txt);
             input.setText("");
             SwingUtilities.invokeLater(
@@ -367,11 +604,18 @@ public class TeacherServer {
         private BufferedReader in;
         private String name;
         private String uid;
+        private volatile String resumeToken;
 
         ClientHandler(Socket s) {
             this.socket = s;
         }
 
+        boolean holdsToken(String token) {
+            String mine = resumeToken;
+            return mine != null && !token.isEmpty()
+                    && MessageDigest.isEqual(mine.getBytes(), token.getBytes());
+        }
+
         public void run() {
             try {
                 in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
@@ -379,31 +623,63 @@ public class TeacherServer {
 
                 name = in.readLine();
                 uid = in.readLine();
+                String presentedToken = in.readLine(); // empty unless the client is resuming its seat
 
-                if (name == null || uid == null) {
+                if (name == null || uid == null || presentedToken == null) {
                     closeQuietly();
                     return;
                 }
 
                 String uidKey = uid.trim().toUpperCase();
 
+                ClientHandler previous;
                 synchronized (clients) {
-                    if (clients.containsKey(uidKey)) {
+                    previous = clients.get(uidKey);
+                    // a live seat is only handed over to the client holding its resume token
+                    // (the student reconnecting before the old connection timed out, e.g. a Wi-Fi drop);
+                    // anything else is a clash. TEACHER_UID is reserved so search can tell the
+                    // teacher's messages apart
+                    boolean reconnect = previous != null && previous.holdsToken(presentedToken.trim());
+                    if ((previous != null && !reconnect) || TEACHER_UID.equals(uidKey)) {
                         out.println("UID_EXISTS");
                         closeQuietly();
                         return;
                     }
                     this.uid = uidKey;
+                    this.resumeToken = newResumeToken();
                     clients.put(uidKey, this);
                 }
+                if (previous != null) {
+                    // tell the replaced connection so it stops reconnecting, if it is still alive
+                    previous.sendLine("SESSION_TAKEN");
+                    previous.closeQuietly();
+                }
+                out.println("RESUME_TOKEN " + resumeToken);
 
                 String display = name + " (" + uidKey + ")";
-                SwingUtilities.invokeLater(() -> studentListModel.addElement(display));
-                attendanceSet.add(display);
-
-                appendMessage("👨‍🎓 " + display + " joined.", false);
-                broadcastToAll("📘 " + display + " marked as PRESENT.");
-                out.println("📘 You are marked as PRESENT in today's attendance.");
+                String waitingDisplay = awaitingRejoin.remove(uidKey);
+                String previousDisplay = previous != null ? previous.name + " (" + uidKey + ")" : null;
+                SwingUtilities.invokeLater(() -> {
+                    if (waitingDisplay != null)
+                        studentListModel.removeElement(waitingDisplay + NOT_REJOINED);
+                    if (previousDisplay != null)
+                        studentListModel.removeElement(previousDisplay);
+                    studentListModel.addElement(display);
+                });
+                stateDirty = true;
+
+                if (previous != null) {
+                    appendMessage("🔁 " + display + " reconnected.", false);
+                    out.println("🔁 Reconnected to class.");
+                } else if (attendanceSet.add(display)) {
+                    appendMessage("👨‍🎓 " + display + " joined.", false);
+                    broadcastToAll("📘 " + display + " marked as PRESENT.");
+                    out.println("📘 You are marked as PRESENT in today's attendance.");
+                } else {
+                    // already present earlier in this session (e.g. before a server restart)
+                    appendMessage("👨‍🎓 " + display + " rejoined.", false);
+                    out.println("📘 Welcome back, you are already marked as PRESENT.");
+                }
 
                 String line;
                 while ((line = in.readLine()) != null) {
@@ -411,6 +687,7 @@ public class TeacherServer {
                         continue;
                     if ("/leave".equalsIgnoreCase(line.trim()))
                         break;
+                    recordMessage(uidKey, line);
 
                     if (groupChatEnabled) {
                         broadcastToAll(display + ": " + line);
@@ -420,11 +697,11 @@ public class TeacherServer {
                     }
                 }
 
-                removeClient(uidKey, display, name);
+                removeClient(this, display);
 
             } catch (IOException e) {
                 if (uid != null) {
-                    removeClient(uid, name + " (" + uid + ")", name);
+                    removeClient(this, name + " (" + uid + ")");
                 }
             }
         }
@@ -443,8 +720,17 @@ public class TeacherServer {
         }
     }
 
-    private void removeClient(String uidKey, String display, String nameOnly) {
-        clients.remove(uidKey);
+    private static String newResumeToken() {
+        byte[] bytes = new byte[16];
+        RANDOM.nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    private void removeClient(ClientHandler ch, String display) {
+        // a reconnect may already have replaced this handler; then there is nothing to remove
+        if (!clients.remove(ch.uid, ch))
+            return;
+        stateDirty = true;
         SwingUtilities.invokeLater(() -> studentListModel.removeElement(display));
         appendMessage("⚠ " + display + " left the class.", false);
         broadcastToAll("⚠ " + display + " left the class.");
@@ -0,0 +1,169 @@
+import javax.net.ssl.*;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.Socket;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.*;
+
+/**
+ * TlsHandshakeBenchmark
+ * - Local TLS server + client on loopback using the SecureTransport key stores
+ * - Full handshake (fresh client context each time) vs resumed (one shared context, as StudentClient reconnects)
+ * - Reports reconnect latency on the client and handshake CPU time on the server
+ * Run scripts/make-test-cert.sh first, then: java TlsHandshakeBenchmark [connections]
+ */
+public class TlsHandshakeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+
+        SSLContext serverCtx = SecureTransport.serverContext();
+        SSLServerSocket server = (SSLServerSocket) serverCtx.getServerSocketFactory().createServerSocket(0);
+        int port = server.getLocalPort();
+        List<Long> serverCpuNs = Collections.synchronizedList(new ArrayList<>());
+
+        Thread serverThread = new Thread(() -> {
+            ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+            while (!server.isClosed()) {
+                try (SSLSocket s = (SSLSocket) server.accept()) {
+                    s.setTcpNoDelay(true);
+                    long cpu = mx.getCurrentThreadCpuTime();
+                    s.startHandshake();
+                    int b = s.getInputStream().read();
+                    serverCpuNs.add(mx.getCurrentThreadCpuTime() - cpu);
+                    s.getOutputStream().write(b);
+                    s.getOutputStream().flush();
+                } catch (IOException ignored) {
+                }
+            }
+        }, "tls-bench-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        // trust material is loaded once; only the SSLContext (and its session cache) varies
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(SecureTransport.loadKeyStore("classroom.truststore", "classroom-trust.p12"));
+        CountingTrustManager trust = new CountingTrustManager((X509ExtendedTrustManager) tmf.getTrustManagers()[0]);
+
+        // warm up both paths so JIT noise doesn't land on the first measured phase
+        run(n / 2, port, trust, false, serverCpuNs);
+        run(n / 2, port, trust, true, serverCpuNs);
+
+        Result full = run(n, port, trust, false, serverCpuNs);
+        Result resumed = run(n, port, trust, true, serverCpuNs);
+        server.close();
+
+        System.out.println(full.protocol + " handshake over loopback, " + n + " connections each");
+        System.out.println();
+        print("full handshake", full);
+        print("resumed session", resumed);
+        System.out.printf("%nresumed reconnect is %.1fx faster, server CPU per handshake %.1fx lower%n",
+                full.avgLatencyUs / resumed.avgLatencyUs, full.avgServerCpuUs / resumed.avgServerCpuUs);
+    }
+
+    private static class Result {
+        double avgLatencyUs;
+        double p95LatencyUs;
+        double avgServerCpuUs;
+        int resumedCount;
+        String protocol;
+    }
+
+    private static Result run(int n, int port, CountingTrustManager trust, boolean shareContext, List<Long> serverCpuNs)
+            throws Exception {
+        serverCpuNs.clear();
+        SSLContext shared = SecureTransport.newContext(null, new TrustManager[]{trust});
+        if (shareContext)
+            connectOnce(shared, port); // first connection is always full; it seeds the session cache
+
+        long[] latencies = new long[n];
+        String protocol = null;
+        trust.checks = 0;
+        for (int i = 0; i < n; i++) {
+            SSLContext ctx = shareContext ? shared : SecureTransport.newContext(null, new TrustManager[]{trust});
+            long start = System.nanoTime();
+            protocol = connectOnce(ctx, port);
+            latencies[i] = System.nanoTime() - start;
+        }
+        while (serverCpuNs.size() < n + (shareContext ? 1 : 0))
+            Thread.sleep(1);
+
+        Result r = new Result();
+        Arrays.sort(latencies);
+        r.avgLatencyUs = Arrays.stream(latencies).average().orElse(0) / 1000.0;
+        r.p95LatencyUs = latencies[(int) (n * 0.95)] / 1000.0;
+        List<Long> cpu = new ArrayList<>(serverCpuNs);
+        if (shareContext)
+            cpu.remove(0);
+        r.avgServerCpuUs = cpu.stream().mapToLong(Long::longValue).average().orElse(0) / 1000.0;
+        r.resumedCount = n - trust.checks;
+        r.protocol = protocol;
+        return r;
+    }
+
+    // same connect path as StudentClient, one byte round trip (also picks up the session ticket), close;
+    // returns the negotiated protocol
+    private static String connectOnce(SSLContext ctx, int port) throws IOException {
+        try (SSLSocket s = SecureTransport.connect(ctx, "localhost", port)) {
+            s.setTcpNoDelay(true);
+            s.getOutputStream().write(1);
+            s.getOutputStream().flush();
+            s.getInputStream().read();
+            return s.getSession().getProtocol();
+        }
+    }
+
+    /**
+     * A resumed handshake skips the server certificate, so every certificate check is a full handshake.
+     */
+    private static class CountingTrustManager extends X509ExtendedTrustManager {
+        private final X509ExtendedTrustManager delegate;
+        volatile int checks;
+
+        CountingTrustManager(X509ExtendedTrustManager delegate) {
+            this.delegate = delegate;
+        }
+
+        public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket)
+                throws CertificateException {
+            checks++;
+            delegate.checkServerTrusted(chain, authType, socket);
+        }
+
+        public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+                throws CertificateException {
+            checks++;
+            delegate.checkServerTrusted(chain, authType, engine);
+        }
+
+        public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            checks++;
+            delegate.checkServerTrusted(chain, authType);
+        }
+
+        public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket)
+                throws CertificateException {
+            delegate.checkClientTrusted(chain, authType, socket);
+        }
+
+        public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+                throws CertificateException {
+            delegate.checkClientTrusted(chain, authType, engine);
+        }
+
+        public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            delegate.checkClientTrusted(chain, authType);
+        }
+
+        public X509Certificate[] getAcceptedIssuers() {
+            return delegate.getAcceptedIssuers();
+        }
+    }
+
+    private static void print(String label, Result r) {
+        System.out.printf("%-16s latency avg %8.1f us  p95 %8.1f us   server CPU %8.1f us/handshake  (%d resumed)%n",
+                label, r.avgLatencyUs, r.p95LatencyUs, r.avgServerCpuUs, r.resumedCount);
+    }
+}
@@ -0,0 +1,607 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * TranscriptIndex is an in-memory inverted index over chat messages.
+ * - Fed incrementally from the server message path
+ * - Term, sender UID and time-range queries (terms are AND-ed)
+ * - Covers the live session and archived (earlier) sessions
+ * - Optionally backed by an append-only journal so sessions survive a restart,
+ *   keeping only the newest maxArchivedSessions archived sessions
+ * Postings are delta-encoded varints, since message ids only ever grow,
+ * with a skip entry every SKIP_INTERVAL postings so a query can jump to a time window.
+ * Simple and thread-safe using synchronized methods.
+ */
+public class TranscriptIndex {
+    private static final int SKIP_INTERVAL = 64;
+    private static final int FIRST_WINDOW = 4096;
+    private static final int JOURNAL_MAGIC = 0x54524931; // "TRI1"
+    private static final int REC_SESSION = 'S';
+    private static final int REC_MESSAGE = 'M';
+    private static final int REPLAY_OK = 0;
+    private static final int REPLAY_TORN = 1; // ended mid-record after good records (crash during a write)
+    private static final int REPLAY_BAD = 2;  // not a journal, corrupt, or unreadable
+
+    /**
+     * A single matching message.
+     */
+    public static class Hit {
+        public final int id;
+        public final int session;
+        public final long time;
+        public final String senderUid;
+        public final String text;
+
+        Hit(int id, int session, long time, String senderUid, String text) {
+            this.id = id;
+            this.session = session;
+            this.time = time;
+            this.senderUid = senderUid;
+            this.text = text;
+        }
+    }
+
+    // Per-message storage, indexed by message id
+    private final ArrayList<String> texts = new ArrayList<>();
+    private final ArrayList<String> senders = new ArrayList<>();
+    private long[] times = new long[1024];
+    private int[] sessions = new int[1024];
+    private int size = 0;
+    private int currentSession = 0;
+    private int liveSessionStart = 0;
+
+    private Map<String, Postings> termPostings = new HashMap<>();
+    private Map<String, Postings> senderPostings = new HashMap<>();
+
+    private final File journalFile; // null = memory only
+    private final int maxArchivedSessions;
+    private DataOutputStream journal;
+
+    /**
+     * Memory-only index with no retention limit.
+     */
+    public TranscriptIndex() {
+        this.journalFile = null;
+        this.maxArchivedSessions = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Index backed by a journal file; existing sessions are loaded from it.
+     */
+    public TranscriptIndex(File journalFile, int maxArchivedSessions) {
+        this.journalFile = journalFile;
+        this.maxArchivedSessions = maxArchivedSessions;
+        int replay = replayJournal();
+        if (replay == REPLAY_OK)
+            openJournal();
+        else if (replay == REPLAY_TORN)
+            truncateTornJournal();
+        else
+            setAsideBadJournal();
+    }
+
+    /**
+     * Indexes a message in the live session and returns its id.
+     */
+    public synchronized int add(String senderUid, String text, long time) {
+        int id = addInternal(currentSession, senderUid, text, time);
+        if (journal != null) {
+            try {
+                writeMessage(journal, times[id], senderUid, text);
+                journal.flush();
+            } catch (IOException e) {
+                journalFailed(e);
+            }
+        }
+        return id;
+    }
+
+    private int addInternal(int session, String senderUid, String text, long time) {
+        int id = size;
+        if (id == times.length) {
+            times = Arrays.copyOf(times, id * 2);
+            sessions = Arrays.copyOf(sessions, id * 2);
+        }
+        // keep times non-decreasing so time ranges map to id ranges
+        if (id > 0 && time < times[id - 1])
+            time = times[id - 1];
+        times[id] = time;
+        sessions[id] = session;
+        texts.add(text);
+        senders.add(senderUid);
+        size++;
+
+        senderPostings.computeIfAbsent(senderUid.toUpperCase(), k -> new Postings()).add(id);
+        for (String term : tokenize(text)) {
+            termPostings.computeIfAbsent(term, k -> new Postings()).add(id);
+        }
+        return id;
+    }
+
+    /**
+     * Closes the live session; later messages go into a new one.
+     * Sessions beyond maxArchivedSessions are dropped, oldest first.
+     */
+    public synchronized void archiveSession() {
+        if (liveSessionStart == size)
+            return; // nothing said, keep the same session
+        currentSession++;
+        liveSessionStart = size;
+        if (size > 0 && currentSession - sessions[0] > maxArchivedSessions) {
+            dropSessionsBefore(currentSession - maxArchivedSessions);
+            rewriteJournal();
+        } else if (journal != null) {
+            try {
+                writeSession(journal, currentSession);
+                journal.flush();
+            } catch (IOException e) {
+                journalFailed(e);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the index from the messages of sessions >= keepFrom.
+     */
+    private void dropSessionsBefore(int keepFrom) {
+        int start = 0;
+        while (start < size && sessions[start] < keepFrom)
+            start++;
+        ArrayList<String> keptTexts = new ArrayList<>(texts.subList(start, size));
+        ArrayList<String> keptSenders = new ArrayList<>(senders.subList(start, size));
+        long[] keptTimes = Arrays.copyOfRange(times, start, size);
+        int[] keptSessions = Arrays.copyOfRange(sessions, start, size);
+
+        clearMessages(keptTimes.length);
+        for (int i = 0; i < keptTimes.length; i++) {
+            addInternal(keptSessions[i], keptSenders.get(i), keptTexts.get(i), keptTimes[i]);
+        }
+        liveSessionStart = size;
+        while (liveSessionStart > 0 && sessions[liveSessionStart - 1] == currentSession)
+            liveSessionStart--;
+    }
+
+    private void clearMessages(int capacity) {
+        texts.clear();
+        senders.clear();
+        texts.trimToSize();
+        senders.trimToSize();
+        times = new long[Math.max(1024, capacity)];
+        sessions = new int[times.length];
+        size = 0;
+        liveSessionStart = 0;
+        termPostings = new HashMap<>();
+        senderPostings = new HashMap<>();
+    }
+
+    // ---------------- Journal ----------------
+
+    /**
+     * Loads the journal into memory. Returns REPLAY_OK, REPLAY_TORN or REPLAY_BAD.
+     */
+    private int replayJournal() {
+        if (!journalFile.exists() || journalFile.length() == 0)
+            return REPLAY_OK;
+        int records = 0;
+        long fileLength = journalFile.length();
+        try (CountingInputStream counter = new CountingInputStream(
+                new BufferedInputStream(new FileInputStream(journalFile)));
+             DataInputStream dis = new DataInputStream(counter)) {
+            if (dis.readInt() != JOURNAL_MAGIC) {
+                System.err.println("TranscriptIndex: " + journalFile + " is not a transcript journal");
+                return REPLAY_BAD;
+            }
+            int type;
+            while ((type = dis.read()) != -1) {
+                if (type == REC_SESSION) {
+                    currentSession = dis.readInt();
+                    liveSessionStart = size;
+                } else if (type == REC_MESSAGE) {
+                    long time = dis.readLong();
+                    String sender = dis.readUTF();
+                    int length = dis.readInt();
+                    if (length < 0)
+                        throw new IOException("corrupt message length " + length);
+                    if (length > fileLength - counter.count)
+                        throw new EOFException("message runs past end of file");
+                    byte[] text = new byte[length];
+                    dis.readFully(text);
+                    addInternal(currentSession, sender, new String(text, StandardCharsets.UTF_8), time);
+                } else {
+                    throw new IOException("unknown record type " + type);
+                }
+                records++;
+            }
+            return REPLAY_OK;
+        } catch (EOFException e) {
+            if (records > 0) {
+                System.err.println("TranscriptIndex: journal ends mid-record, keeping " + size + " messages");
+                return REPLAY_TORN;
+            }
+            System.err.println("TranscriptIndex: journal " + journalFile + " is truncated");
+            return REPLAY_BAD;
+        } catch (IOException e) {
+            System.err.println("TranscriptIndex: could not read journal " + journalFile + ": " + e.getMessage());
+            return REPLAY_BAD;
+        }
+    }
+
+    /**
+     * Rewrites the journal without its half-written last record. The original is kept
+     * as <file>.bad first, in case the "torn" record was really corruption mid-file.
+     */
+    private void truncateTornJournal() {
+        try {
+            Files.copy(journalFile.toPath(), new File(journalFile.getPath() + ".bad").toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("TranscriptIndex: could not back up " + journalFile + ", not saving transcripts: "
+                    + e.getMessage());
+            return;
+        }
+        rewriteJournal();
+    }
+
+    /**
+     * Moves an unusable journal to <file>.bad and starts empty, so nothing is overwritten.
+     * If it cannot be moved, the index runs in memory only and leaves the file alone.
+     */
+    private void setAsideBadJournal() {
+        clearMessages(0);
+        currentSession = 0;
+        File bad = new File(journalFile.getPath() + ".bad");
+        try {
+            Files.move(journalFile.toPath(), bad.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("TranscriptIndex: could not move " + journalFile + " aside, not saving transcripts: "
+                    + e.getMessage());
+            return;
+        }
+        System.err.println("TranscriptIndex: moved unusable journal to " + bad + ", starting empty");
+        openJournal();
+    }
+
+    private void openJournal() {
+        try {
+            boolean fresh = !journalFile.exists() || journalFile.length() == 0;
+            journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile, true)));
+            if (fresh) {
+                journal.writeInt(JOURNAL_MAGIC);
+                writeSession(journal, currentSession);
+                journal.flush();
+            }
+        } catch (IOException e) {
+            journalFailed(e);
+        }
+    }
+
+    /**
+     * Writes the in-memory state to a new journal (temp file + rename) and appends to it from then on.
+     */
+    private void rewriteJournal() {
+        if (journalFile == null)
+            return;
+        closeJournal();
+        File tmp = new File(journalFile.getPath() + ".tmp");
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            dos.writeInt(JOURNAL_MAGIC);
+            int session = -1;
+            for (int id = 0; id < size; id++) {
+                if (sessions[id] != session) {
+                    session = sessions[id];
+                    writeSession(dos, session);
+                }
+                writeMessage(dos, times[id], senders.get(id), texts.get(id));
+            }
+            if (session != currentSession)
+                writeSession(dos, currentSession);
+        } catch (IOException e) {
+            journalFailed(e);
+            return;
+        }
+        try {
+            Files.move(tmp.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try {
+                Files.move(tmp.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e2) {
+                journalFailed(e2);
+                return;
+            }
+        }
+        openJournal();
+    }
+
+    /**
+     * Counts bytes read, so a record length can be checked against what is left in the file.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1)
+                count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0)
+                count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    private static void writeSession(DataOutputStream dos, int session) throws IOException {
+        dos.writeByte(REC_SESSION);
+        dos.writeInt(session);
+    }
+
+    private static void writeMessage(DataOutputStream dos, long time, String sender, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        dos.writeByte(REC_MESSAGE);
+        dos.writeLong(time);
+        dos.writeUTF(sender);
+        dos.writeInt(bytes.length);
+        dos.write(bytes);
+    }
+
+    private void journalFailed(IOException e) {
+        System.err.println("TranscriptIndex: could not write journal, continuing in memory: " + e.getMessage());
+        closeJournal();
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException ignored) {
+            }
+            journal = null;
+        }
+    }
+
+    /**
+     * Flushes and closes the journal; the index stays searchable in memory.
+     */
+    public synchronized void close() {
+        closeJournal();
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Bytes used by all postings lists (term + sender), for sizing/benchmarks.
+     */
+    public synchronized long postingsBytes() {
+        long total = 0;
+        for (Postings p : termPostings.values()) total += p.len;
+        for (Postings p : senderPostings.values()) total += p.len;
+        return total;
+    }
+
+    /**
+     * Finds messages containing all terms of the query.
+     *
+     * @param query       free text, may be empty to match everything
+     * @param senderUid   restrict to one sender, or null
+     * @param fromTime    inclusive lower bound (ms), or Long.MIN_VALUE
+     * @param toTime      inclusive upper bound (ms), or Long.MAX_VALUE
+     * @param liveOnly    only search the live session
+     * @param maxHits     maximum number of results, newest first
+     */
+    public synchronized List<Hit> search(String query, String senderUid, long fromTime, long toTime,
+                                         boolean liveOnly, int maxHits) {
+        int lo = lowerBound(fromTime);
+        int hi = upperBound(toTime); // exclusive
+        if (liveOnly)
+            lo = Math.max(lo, liveSessionStart);
+        if (lo >= hi || maxHits <= 0)
+            return Collections.emptyList();
+
+        ArrayList<Postings> lists = new ArrayList<>();
+        for (String term : tokenize(query == null ? "" : query)) {
+            Postings p = termPostings.get(term);
+            if (p == null)
+                return Collections.emptyList();
+            lists.add(p);
+        }
+        if (senderUid != null && !senderUid.trim().isEmpty()) {
+            Postings p = senderPostings.get(senderUid.trim().toUpperCase());
+            if (p == null)
+                return Collections.emptyList();
+            lists.add(p);
+        }
+
+        // start from the rarest list, then intersect the rest into it
+        lists.sort(Comparator.comparingInt(p -> p.count));
+
+        // walk id windows backwards from the newest message, doubling the window each time,
+        // so "latest N hits" only decodes the tail of each postings list
+        ArrayList<Hit> hits = new ArrayList<>(Math.min(hi - lo, maxHits));
+        int windowHi = hi;
+        int span = FIRST_WINDOW;
+        while (windowHi > lo && hits.size() < maxHits) {
+            int windowLo = Math.max(lo, windowHi - span);
+            if (lists.isEmpty()) {
+                for (int id = windowHi - 1; id >= windowLo && hits.size() < maxHits; id--)
+                    hits.add(hit(id));
+            } else {
+                int[] matches = lists.get(0).decode(windowLo, windowHi);
+                int n = matches.length;
+                for (int i = 1; i < lists.size() && n > 0; i++) {
+                    n = lists.get(i).retain(matches, n);
+                }
+                for (int i = n - 1; i >= 0 && hits.size() < maxHits; i--)
+                    hits.add(hit(matches[i]));
+            }
+            windowHi = windowLo;
+            span *= 2;
+        }
+        return hits;
+    }
+
+    private Hit hit(int id) {
+        return new Hit(id, sessions[id], times[id], senders.get(id), texts.get(id));
+    }
+
+    // first id with time >= t
+    private int lowerBound(long t) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < t) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // first id with time > t
+    private int upperBound(long t) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] <= t) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Lower-cased runs of letters/digits, de-duplicated.
+     */
+    static Set<String> tokenize(String text) {
+        LinkedHashSet<String> terms = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Ascending message ids stored as varint gaps.
+     */
+    private static class Postings {
+        private byte[] buf = new byte[8];
+        private int len = 0;
+        private int last = -1;
+        private int count = 0;
+        // skip entry b: id preceding block b and the byte offset where the block starts
+        private int[] skipIds = new int[1];
+        private int[] skipPos = new int[1];
+
+        void add(int id) {
+            if (id == last)
+                return;
+            if (count % SKIP_INTERVAL == 0) {
+                int b = count / SKIP_INTERVAL;
+                if (b == skipIds.length) {
+                    skipIds = Arrays.copyOf(skipIds, b * 2);
+                    skipPos = Arrays.copyOf(skipPos, b * 2);
+                }
+                skipIds[b] = last;
+                skipPos[b] = len;
+            }
+            int gap = id - last; // first gap is id + 1, always > 0
+            if (len + 5 > buf.length)
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            while ((gap & ~0x7F) != 0) {
+                buf[len++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            buf[len++] = (byte) gap;
+            last = id;
+            count++;
+        }
+
+        // last block whose preceding id is below from, i.e. the block that may hold from
+        private int seek(int from) {
+            int lo = 0, hi = (count + SKIP_INTERVAL - 1) / SKIP_INTERVAL - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (skipIds[mid] < from) lo = mid;
+                else hi = mid - 1;
+            }
+            return lo;
+        }
+
+        /**
+         * Ids in [lo, hi).
+         */
+        int[] decode(int lo, int hi) {
+            int[] out = new int[Math.min(count, hi - lo)];
+            int n = 0;
+            int block = seek(lo);
+            int id = skipIds[block];
+            int pos = skipPos[block];
+            while (pos < len) {
+                int gap = 0, shift = 0;
+                byte b;
+                do {
+                    b = buf[pos++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                id += gap;
+                if (id >= hi)
+                    break;
+                if (id >= lo)
+                    out[n++] = id;
+            }
+            return n == out.length ? out : Arrays.copyOf(out, n);
+        }
+
+        /**
+         * Keeps only the first n ids of candidates (ascending) that are also in this list.
+         * Returns the new count.
+         */
+        int retain(int[] candidates, int n) {
+            int kept = 0;
+            int c = 0;
+            int block = seek(candidates[0]);
+            int id = skipIds[block];
+            int pos = skipPos[block];
+            while (pos < len && c < n) {
+                int gap = 0, shift = 0;
+                byte b;
+                do {
+                    b = buf[pos++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                id += gap;
+                while (c < n && candidates[c] < id)
+                    c++;
+                if (c < n && candidates[c] == id)
+                    candidates[kept++] = candidates[c++];
+            }
+            return kept;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.*;
+
+/**
+ * TranscriptIndexBenchmark
+ * - Fills a TranscriptIndex with synthetic classroom chat (several archived sessions + a live one)
+ * - Times typical teacher queries and prints the average latency per query
+ * Run: java TranscriptIndexBenchmark [messages]
+ */
+public class TranscriptIndexBenchmark {
+    private static final String[] COMMON = {"the", "is", "a", "sir", "ma'am", "please", "can", "we", "i", "what",
+            "question", "doubt", "yes", "no", "ok", "thanks", "how", "why", "answer", "class"};
+    private static final String[] TOPICS = {"assignment", "lab", "exam", "quiz", "deadline", "marks", "project",
+            "socket", "thread", "swing", "attendance", "submission", "chapter", "slides", "recursion"};
+
+    public static void main(String[] args) {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int sessions = 20;
+        int students = 120;
+        Random rnd = new Random(42);
+        TranscriptIndex index = new TranscriptIndex();
+
+        long t = 1_700_000_000_000L;
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            if (i > 0 && i % (messages / sessions) == 0)
+                index.archiveSession();
+            t += 200 + rnd.nextInt(2000);
+            String uid = rnd.nextInt(10) == 0 ? "TEACHER" : "UID" + (1000 + rnd.nextInt(students));
+            StringBuilder sb = new StringBuilder();
+            int words = 3 + rnd.nextInt(10);
+            for (int w = 0; w < words; w++) {
+                if (rnd.nextInt(5) == 0) {
+                    sb.append(TOPICS[rnd.nextInt(TOPICS.length)]).append(' ').append(1 + rnd.nextInt(10));
+                } else {
+                    sb.append(COMMON[rnd.nextInt(COMMON.length)]);
+                }
+                sb.append(' ');
+            }
+            index.add(uid, sb.toString(), t);
+        }
+        long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+        long lastTime = t;
+
+        System.out.println("Indexed " + index.size() + " messages in " + buildMs + " ms, postings = "
+                + (index.postingsBytes() / 1024) + " KiB");
+        System.out.println();
+
+        run("term: recursion", () -> index.search("recursion", null, Long.MIN_VALUE, Long.MAX_VALUE, false, 50));
+        run("terms: question assignment 3", () -> index.search("question assignment 3", null,
+                Long.MIN_VALUE, Long.MAX_VALUE, false, 50));
+        run("sender: UID1007", () -> index.search("", "UID1007", Long.MIN_VALUE, Long.MAX_VALUE, false, 50));
+        run("sender + term, live session", () -> index.search("deadline", "UID1007",
+                Long.MIN_VALUE, Long.MAX_VALUE, true, 50));
+        run("term, last hour", () -> index.search("exam", null, lastTime - 3_600_000L, Long.MAX_VALUE, false, 50));
+        run("common term: the", () -> index.search("the", null, Long.MIN_VALUE, Long.MAX_VALUE, false, 50));
+    }
+
+    private static void run(String label, java.util.function.Supplier<List<TranscriptIndex.Hit>> query) {
+        int warmup = 2_000, iters = 5_000;
+        long hits = 0;
+        for (int i = 0; i < warmup; i++)
+            hits += query.get().size();
+        hits = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iters; i++)
+            hits += query.get().size(); // printed below, so the timed results stay live
+        double avgUs = (System.nanoTime() - start) / 1000.0 / iters;
+        System.out.printf("%-32s %8.1f us/query  (%d hits)%n", label, avgUs, hits / iters);
+    }
+}